@@ -1,7 +1,9 @@
 import database.Database;
+import database.FlushPolicy;
 import user.Account;
 
 import java.text.NumberFormat;
+import java.util.List;
 import java.util.concurrent.*;
 
 /**
@@ -17,14 +19,21 @@ public class ShitakisApp {
         //Create the simulated process executor that will update the user's value as if it was someone in-game
         final ScheduledExecutorService pSetValueExecutor = Executors.newSingleThreadScheduledExecutor();
 
-        //Create the observer executor that will process aggregated updates from the object cache
-        final ScheduledExecutorService pUpdateExecutor = Executors.newSingleThreadScheduledExecutor();
+        //Init our database connection pool, validating and warming up every Snapshot class before the first object is created
+        if (!Database.Init("127.0.0.1", "3306", "shitakis", "root", "password", List.of(Account.class))) { // will have to fill this method yourself
+            System.err.println("Snapshot classes do not match the database, fix the columns printed above before continuing.");
+            pSetValueExecutor.shutdown();
+            return;
+        }
 
-        //Init our database connection pool
-        Database.Init("127.0.0.1", "3306", "shitakis", "root", "password"); // will have to fill this method yourself
+        //Create the flush policy that will process aggregated updates from the object cache
+        // ticks every 500ms, holds changes 3s when the DB is idle, never longer than 30s, forces flushes past 10,000 dirty
+        // columns and starts shedding once an average flush takes 250ms
+        final FlushPolicy pFlushPolicy = new FlushPolicy(500L, 3000L, 30000L, 10000, 250L);
+        pFlushPolicy.Start();
 
         //Create our Account object for a test
-        final Account pAccount = new Account(1);
+        final Account pAccount = Account.GetByAccountID(1);
         // NOTE - when initializing an object that implements Snapshot/SnapshotList,
         //        it loads its own information from the database automatically during instantiation
 
@@ -33,15 +42,11 @@ public class ShitakisApp {
             System.out.printf("\r\nAdded 10,000 NX cash (New Total: %s)", NumberFormat.getInstance().format(pAccount.nNexonCash));
         }, 1000L, 1000L, TimeUnit.MILLISECONDS);
 
-        pUpdateExecutor.scheduleAtFixedRate(() -> {
-            // Optional logging below if you want to verify your statements are being assembled correctly
-            //System.out.println(pAccount.GetInsertStatement());
-            System.out.println(pAccount.GetUpdateStatement());
-
-            pAccount.Update();
-            // This is ALL that you need to ever do - compares and save only changed values altered since the previous flush and re-caches the history
-
-        }, 1500, 3000L, TimeUnit.MILLISECONDS);
+        pFlushPolicy.Register(pAccount, FlushPolicy.PRIORITY_HIGH);
+        // This is ALL that you need to ever do - the policy compares and saves only changed values altered since the
+        // previous flush, deciding when to flush from staleness, the dirty budget and how busy the database is
+        // Optional logging below if you want to verify your statements are being assembled correctly
+        //System.out.println(pAccount.GetUpdateStatement());
 
         try {
             System.out.println("Press any key to exit the program.");
@@ -51,7 +56,7 @@ public class ShitakisApp {
             e.printStackTrace();
         } finally {
             pSetValueExecutor.shutdown();
-            pUpdateExecutor.shutdown();
+            pFlushPolicy.Stop(); // final flush for everything still registered
         }
     }
 }
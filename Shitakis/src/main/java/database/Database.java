@@ -5,8 +5,11 @@ import com.zaxxer.hikari.HikariDataSource;
 import java.io.Serializable;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.*;
 
 public class Database {
 
@@ -45,6 +48,137 @@ public class Database {
         pConnection = new HikariDataSource(pConfig);
     }
 
+    /**
+     * Initializes the connection pool, then performs the Warmup() bootstrap for the given Snapshot classes
+     *
+     * @return True, if every class matched its table in the database (see Warmup)
+     */
+    public static boolean Init(String sHost, String sPort, String sSchema, String sUsername, String sPassword, List<Class<? extends Snapshot>> aSnapshotClasses) {
+        Init(sHost, sPort, sSchema, sUsername, sPassword);
+        return Warmup(aSnapshotClasses);
+    }
+
+    /**
+     * Bootstrap step so that the first object created after boot doesn't pay for everything at once:
+     *      1. Builds the SnapshotMetadata (reflected fields, column types, SQL strings) for every class
+     *      2. Validates every class against INFORMATION_SCHEMA.COLUMNS using one query per schema, printing any
+     *         missing table, column, increment key, unique key or field now instead of as stack traces on the first
+     *         load/flush
+     *      3. Fills the connection pool, and runs every class's SELECT (by key and by each unique key) once so the
+     *         driver and the server are warm; the SQL itself was already precomputed by step 1
+     *
+     * @return True, if every class could be built, matched its table and ran its statements; False, if anything was printed
+     */
+    public static boolean Warmup(List<Class<? extends Snapshot>> aSnapshotClasses) {
+        boolean bValid = true;
+        Map<String, List<SnapshotMetadata>> mBySchema = new LinkedHashMap<>();
+        for (Class<? extends Snapshot> pClass : aSnapshotClasses) {
+            SnapshotMetadata pMetadata = SnapshotMetadata.Get(pClass);
+            if (pMetadata == null) {
+                System.err.printf("[Warmup] %s needs a no-argument constructor that calls super(null, false, false)%n", pClass.getName());
+                bValid = false;
+                continue;
+            }
+            for (String sUniqueKey : pMetadata.mUniqueKeyIndex.keySet()) {
+                if (!Arrays.asList(pMetadata.aColumnNames).contains(sUniqueKey)) {
+                    System.err.printf("[Warmup] %s unique key `%s` is not one of its table columns%n", pClass.getName(), sUniqueKey);
+                    bValid = false;
+                }
+            }
+            for (int i = 0; i < pMetadata.aFields.length; i++) {
+                if (pMetadata.aFields[i] == null) {
+                    System.err.printf("[Warmup] %s has no field for column `%s`%n", pClass.getName(), pMetadata.aColumnNames[i]);
+                    bValid = false;
+                }
+            }
+            mBySchema.computeIfAbsent(pMetadata.sSchemaName, k -> new ArrayList<>()).add(pMetadata);
+        }
+
+        try (Connection con = GetConnection()) {
+            if (con == null) {
+                System.err.println("[Warmup] No connection available to validate the schema");
+                return false;
+            }
+            for (Map.Entry<String, List<SnapshotMetadata>> pEntry : mBySchema.entrySet()) {
+                Map<String, Set<String>> mTables = new HashMap<>();
+                try (PreparedStatement ps = con.prepareStatement("SELECT TABLE_NAME, COLUMN_NAME FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_SCHEMA = ?")) {
+                    ps.setString(1, pEntry.getKey());
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            mTables.computeIfAbsent(rs.getString(1).toLowerCase(), k -> new HashSet<>()).add(rs.getString(2).toLowerCase());
+                        }
+                    }
+                }
+                for (SnapshotMetadata pMetadata : pEntry.getValue()) {
+                    Set<String> aColumns = mTables.get(pMetadata.sTableName.toLowerCase());
+                    if (aColumns == null) {
+                        System.err.printf("[Warmup] %s maps to `%s`.`%s` which does not exist%n", pMetadata.pClass.getName(), pMetadata.sSchemaName, pMetadata.sTableName);
+                        bValid = false;
+                        continue;
+                    }
+                    // The increment key and unique keys are used in every WHERE, so they must exist just like the columns
+                    Set<String> aRequired = new LinkedHashSet<>(Arrays.asList(pMetadata.aColumnNames));
+                    aRequired.add(pMetadata.sIncrementKey);
+                    aRequired.addAll(pMetadata.mUniqueKeyIndex.keySet());
+                    for (String sColumn : aRequired) {
+                        if (!aColumns.contains(sColumn.toLowerCase())) {
+                            System.err.printf("[Warmup] %s column `%s` does not exist in `%s`.`%s`%n", pMetadata.pClass.getName(), sColumn, pMetadata.sSchemaName, pMetadata.sTableName);
+                            bValid = false;
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+
+        // Hold every connection the pool allows at once so Hikari has to open all of them now instead of on first use.
+        // Statements are prepared client-side (useServerPrepStmts=false), so there is nothing to cache per connection;
+        // instead each class's SELECT is executed once with a NULL key (matches no row) so the driver's execute and
+        // result-set paths are loaded and the server has the table open before the first real object is created
+        List<Connection> aConnections = new ArrayList<>();
+        try {
+            for (int i = 0; i < GetMaximumPoolSize(); i++) {
+                Connection con = GetConnection();
+                if (con == null) {
+                    break;
+                }
+                aConnections.add(con);
+            }
+            if (!aConnections.isEmpty()) {
+                Connection con = aConnections.get(0);
+                for (List<SnapshotMetadata> aMetadata : mBySchema.values()) {
+                    for (SnapshotMetadata pMetadata : aMetadata) {
+                        List<String> aSelectQueries = new ArrayList<>(pMetadata.mSelectByUniqueKey.values());
+                        aSelectQueries.add(pMetadata.sSelectStatement);
+                        for (String sSelectQuery : aSelectQueries) {
+                            try (PreparedStatement ps = con.prepareStatement(sSelectQuery)) {
+                                ps.setNull(1, Types.NULL);
+                                try (ResultSet rs = ps.executeQuery()) {
+                                    rs.next(); // `column` = NULL never matches, there is nothing to read
+                                }
+                            } catch (SQLException e) {
+                                // A statement that can't run now will fail on the first real load too; keep warming the rest
+                                System.err.printf("[Warmup] %s failed to run: %s (%s)%n", pMetadata.pClass.getName(), sSelectQuery, e.getMessage());
+                                bValid = false;
+                            }
+                        }
+                    }
+                }
+            }
+        } finally {
+            for (Connection con : aConnections) {
+                try {
+                    con.close();
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        return bValid;
+    }
+
     public static Connection GetConnection() {
         if (pConnection == null) {
             return null;
@@ -57,6 +191,49 @@ public class Database {
         }
     }
 
+    /**
+     * @return The amount of threads currently blocked waiting for a pooled connection, or 0 if the pool isn't running
+     */
+    public static int GetThreadsAwaitingConnection() {
+        if (pConnection == null || pConnection.getHikariPoolMXBean() == null) {
+            return 0;
+        }
+        return pConnection.getHikariPoolMXBean().getThreadsAwaitingConnection();
+    }
+
+    /**
+     * @return The maximum amount of connections the pool is configured to hold
+     */
+    public static int GetMaximumPoolSize() {
+        if (pConnection == null) {
+            return 0;
+        }
+        return pConnection.getMaximumPoolSize();
+    }
+
+    /**
+     * Counts the '?' parameters of a statement, ignoring any inside quoted literals or identifiers
+     *
+     * @return The amount of parameters that must be bound before the statement is executed
+     */
+    public static int CountParameters(String sQuery) {
+        int nParameters = 0;
+        char cQuote = 0;
+        for (int i = 0; i < sQuery.length(); i++) {
+            char c = sQuery.charAt(i);
+            if (cQuote != 0) {
+                if (c == cQuote) {
+                    cQuote = 0;
+                }
+            } else if (c == '\'' || c == '"' || c == '`') {
+                cQuote = c;
+            } else if (c == '?') {
+                nParameters++;
+            }
+        }
+        return nParameters;
+    }
+
     private static int Bind(PreparedStatement propSet, Object... command) {
         for (int i = 1; i <= command.length; i++) {
             Object cmd = command[i - 1];
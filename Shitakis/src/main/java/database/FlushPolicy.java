@@ -0,0 +1,253 @@
+package database;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adaptive replacement for the "call Update() on a fixed timer" approach
+ * ---------------------------------------------
+ *
+ * Instead of every object flushing itself every few seconds (piling onto the DB when it is slow, and holding data
+ * longer than needed when it is idle) you register your Snapshots here once, and a single tick decides who flushes:
+ *      1. Staleness - no registered object ever holds a change longer than its max staleness (the SLA)
+ *      2. Dirty budget - once the total amount of dirty columns across all objects passes the budget, the dirtiest
+ *         objects are flushed until we are back underneath it
+ *      3. Pressure - measured flush latency and pool waiters stretch the flush delay from the min towards the max
+ *         staleness; while the DB is saturated only overdue objects are flushed, paced to the tick's time budget
+ *
+ * Higher priority objects (ex: anything holding cash) are always flushed first inside a tick.
+ *
+ * How to use:
+ *      1. Create one FlushPolicy and Start() it after Database.Init()
+ *      2. Register(pAccount, nPriority) when the object is loaded, Unregister(pAccount) when it is destroyed
+ *         (Unregister performs the final flush for you, just like calling Update() on socket disconnect)
+ */
+public class FlushPolicy {
+
+    public static final int
+            PRIORITY_LOW = 0,
+            PRIORITY_NORMAL = 1,
+            PRIORITY_HIGH = 2;
+
+    private static final double LATENCY_SMOOTHING = 0.2;
+
+    private final long nTickMillis, nMinStaleness, nMaxStaleness, nSlowLatency;
+    private final int nMaxDirtyColumns;
+    private final Map<Snapshot, Registration> mRegistered;
+    private ScheduledExecutorService pTickExecutor;
+    private volatile double dFlushLatency;
+
+    /**
+     * @param nTickMillis How often the policy measures its registered objects and decides what to flush
+     * @param nMinStaleness How long a change is held when the database is idle, so bursts of changes are still aggregated
+     * @param nMaxStaleness The default longest time any change may be held before it must be flushed
+     * @param nMaxDirtyColumns The total amount of dirty columns across all objects allowed before forcing flushes
+     * @param nSlowLatency The flush latency (ms) at which the database is considered saturated and flushes are shed
+     */
+    public FlushPolicy(long nTickMillis, long nMinStaleness, long nMaxStaleness, int nMaxDirtyColumns, long nSlowLatency) {
+        this.nTickMillis = nTickMillis;
+        this.nMinStaleness = nMinStaleness;
+        this.nMaxStaleness = Math.max(nMinStaleness, nMaxStaleness);
+        this.nMaxDirtyColumns = nMaxDirtyColumns;
+        this.nSlowLatency = Math.max(1, nSlowLatency);
+        this.mRegistered = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Registers an object to be flushed by this policy using the default max staleness
+     */
+    public void Register(Snapshot pSnapshot, int nPriority) {
+        Register(pSnapshot, nPriority, nMaxStaleness);
+    }
+
+    /**
+     * Registers an object to be flushed by this policy
+     * @param nPriority The flush priority within a tick (see PRIORITY_*); higher values flush first
+     * @param nMaxStaleness The longest time this specific object may hold a change before it must be flushed
+     */
+    public void Register(Snapshot pSnapshot, int nPriority, long nMaxStaleness) {
+        mRegistered.put(pSnapshot, new Registration(nPriority, Math.max(nMinStaleness, nMaxStaleness)));
+    }
+
+    /**
+     * Removes an object from this policy, flushing anything it still has waiting
+     */
+    public void Unregister(Snapshot pSnapshot) {
+        if (mRegistered.remove(pSnapshot) != null) {
+            Flush(pSnapshot);
+        }
+    }
+
+    public void Start() {
+        if (pTickExecutor == null) {
+            pTickExecutor = Executors.newSingleThreadScheduledExecutor();
+            pTickExecutor.scheduleWithFixedDelay(this::Tick, nTickMillis, nTickMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops the tick and flushes every registered object one last time regardless of pressure
+     */
+    public void Stop() {
+        if (pTickExecutor != null) {
+            pTickExecutor.shutdown();
+            try {
+                pTickExecutor.awaitTermination(nTickMillis + nSlowLatency, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            pTickExecutor = null;
+        }
+        for (Snapshot pSnapshot : mRegistered.keySet()) {
+            Flush(pSnapshot);
+        }
+    }
+
+    /**
+     * A value from 0 (idle) to 1 (saturated) combining the smoothed flush latency with threads waiting on the pool
+     */
+    public double GetPressure() {
+        double dPressure = dFlushLatency / nSlowLatency;
+        int nPoolSize = Database.GetMaximumPoolSize();
+        if (nPoolSize > 0) {
+            dPressure = Math.max(dPressure, (double) Database.GetThreadsAwaitingConnection() / nPoolSize);
+        }
+        return Math.min(1.0, dPressure);
+    }
+
+    /**
+     * @return The smoothed latency (ms) of successful flushes that drives GetPressure()
+     */
+    double GetFlushLatency() {
+        return dFlushLatency;
+    }
+
+    /**
+     * One pass of the policy; measures every registered object, then flushes the objects selected by the triggers
+     * in order of (overdue, priority, age) until the time budget of this tick has been used up
+     */
+    public void Tick() {
+        long tNow = System.currentTimeMillis();
+        double dPressure = GetPressure();
+        boolean bShedding = dPressure >= 1.0;
+
+        int nTotalDirty = 0;
+        List<Candidate> aDirty = new ArrayList<>();
+        for (Map.Entry<Snapshot, Registration> pEntry : mRegistered.entrySet()) {
+            Snapshot pSnapshot = pEntry.getKey();
+            try {
+                int nDirty = pSnapshot.Collect();
+                if (nDirty > 0) {
+                    nTotalDirty += nDirty;
+                    aDirty.add(new Candidate(pSnapshot, pEntry.getValue(), nDirty, tNow - pSnapshot.GetDirtySince()));
+                }
+            } catch (RuntimeException e) {
+                // One broken object must never cancel the scheduled tick for every other registered object
+                e.printStackTrace();
+            }
+        }
+        if (aDirty.isEmpty()) {
+            return;
+        }
+
+        List<Candidate> aFlush = new ArrayList<>();
+        List<Candidate> aHeld = new ArrayList<>();
+        for (Candidate pCandidate : aDirty) {
+            Registration pRegistration = pCandidate.pRegistration;
+            long nDelay = nMinStaleness + (long) ((pRegistration.nMaxStaleness - nMinStaleness) * dPressure);
+            if (pCandidate.IsOverdue() || (!bShedding && pCandidate.nAge >= nDelay)) {
+                aFlush.add(pCandidate);
+                nTotalDirty -= pCandidate.nDirty;
+            } else {
+                aHeld.add(pCandidate);
+            }
+        }
+        // Over the dirty budget - pull the dirtiest held objects in until we are back underneath it
+        if (nTotalDirty > nMaxDirtyColumns) {
+            aHeld.sort((a, b) -> Integer.compare(b.nDirty, a.nDirty));
+            for (Candidate pCandidate : aHeld) {
+                if (nTotalDirty <= nMaxDirtyColumns) {
+                    break;
+                }
+                aFlush.add(pCandidate);
+                nTotalDirty -= pCandidate.nDirty;
+            }
+        }
+
+        aFlush.sort((a, b) -> {
+            if (a.IsOverdue() != b.IsOverdue()) {
+                return a.IsOverdue() ? -1 : 1;
+            }
+            if (a.pRegistration.nPriority != b.pRegistration.nPriority) {
+                return Integer.compare(b.pRegistration.nPriority, a.pRegistration.nPriority);
+            }
+            return Long.compare(b.nAge, a.nAge);
+        });
+        long tBudgetEnd = tNow + nTickMillis;
+        for (Candidate pCandidate : aFlush) {
+            // Always flush at least one object per tick so the overdue/high priority head can never starve
+            if (pCandidate != aFlush.get(0) && System.currentTimeMillis() >= tBudgetEnd) {
+                break;
+            }
+            Flush(pCandidate.pSnapshot);
+        }
+    }
+
+    /**
+     * Flushes a single object, feeding the time it took (pool wait included) into the smoothed flush latency;
+     * a failure is logged and only affects this object, it stays dirty and is picked up again on the next tick
+     *
+     * Only flushes that actually executed a statement successfully are sampled - a clean object (no DB work) or a
+     * failing database (fast errors) would otherwise drag the latency down and make a struggling DB look idle
+     */
+    private void Flush(Snapshot pSnapshot) {
+        long tStart = System.nanoTime();
+        try {
+            if (pSnapshot.FlushToDB()) {
+                RecordLatency((System.nanoTime() - tStart) / 1_000_000.0);
+            }
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Synchronized since both the tick thread and Unregister()/Stop() callers flush
+     */
+    private synchronized void RecordLatency(double dLatency) {
+        dFlushLatency = dFlushLatency == 0 ? dLatency : dFlushLatency + LATENCY_SMOOTHING * (dLatency - dFlushLatency);
+    }
+
+    private static class Registration {
+        private final int nPriority;
+        private final long nMaxStaleness;
+
+        private Registration(int nPriority, long nMaxStaleness) {
+            this.nPriority = nPriority;
+            this.nMaxStaleness = nMaxStaleness;
+        }
+    }
+
+    private static class Candidate {
+        private final Snapshot pSnapshot;
+        private final Registration pRegistration;
+        private final int nDirty;
+        private final long nAge;
+
+        private Candidate(Snapshot pSnapshot, Registration pRegistration, int nDirty, long nAge) {
+            this.pSnapshot = pSnapshot;
+            this.pRegistration = pRegistration;
+            this.nDirty = nDirty;
+            this.nAge = nAge;
+        }
+
+        private boolean IsOverdue() {
+            return nAge >= pRegistration.nMaxStaleness;
+        }
+    }
+}
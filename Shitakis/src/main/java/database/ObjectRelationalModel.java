@@ -3,6 +3,11 @@ package database;
 /**
  *
  * @author Smoke
+ *
+ * NOTE - GetSchemaName(), GetTableName(), GetIncrementKey() and GetTableColumnNames() are read once per class (see
+ *        SnapshotMetadata) and the SQL is built from them, so they must return the same values for every object of a
+ *        class and must not depend on instance fields; set constants like Database.LOGIN_SCHEMA before the first
+ *        object is created (or Database.Warmup is called) - changing them afterwards has no effect
  */
 public interface ObjectRelationalModel {
     String ToString();
@@ -32,6 +32,15 @@ import java.util.concurrent.locks.ReentrantLock;
  *      2. Make sure it loads properly from the DB by using the Snapshot::ToString() function
  *      3. Call Snapshot::Update() at the intersection where you would like to check for changes and flush
  *
+ * Rules for implementing classes:
+ *      1. The table definition methods (schema, table, increment key, columns, unique keys) are read once per class
+ *      and must return the same values for every object - see ObjectRelationalModel
+ *      2. Declare a no-argument constructor that loads nothing, ex: private Account() { super(null, false, false); }
+ *      - Database.Warmup and the static GetLoaded lookups use it to read the table definition before any object
+ *      exists, and report/fail for any class without one
+ *      3. Objects created by a lookup must be passed through Snapshot::Resolve() once constructed, so two objects
+ *      never exist (and flush) for the same row
+ *
  * Best practice:
  *      1. If you make sure this object is also called on socket disconnect / object reallocation then you will never
  *      worry about any issues involving saves failing from coder oversight or error. It also provides the benefit of
@@ -44,9 +53,11 @@ public abstract class Snapshot implements ObjectRelationalModel {
 
     protected boolean bLoaded;
     protected boolean bSave, bAutoFlush;
+    protected long nDirtySince;
     protected Object pKeyValue;
     protected Map<String, Object> mSnapshot;
     protected Map<String, Object> mCachedUpdate;
+    protected final SnapshotMetadata pMetadata;
     protected ReentrantLock pUpdateThenFlushLock = new ReentrantLock();
 
     /**
@@ -54,7 +65,8 @@ public abstract class Snapshot implements ObjectRelationalModel {
      * @param pKeyValue The value of the auto-increment-key or table-key to retrieve the row for this object via unique ID
      */
     public Snapshot(Object pKeyValue) {
-        this.mSnapshot = new LinkedHashMap<>(GetTableColumnNames().length);
+        this.pMetadata = SnapshotMetadata.Get(this);
+        this.mSnapshot = new LinkedHashMap<>(pMetadata.aColumnNames.length);
         this.mCachedUpdate = new LinkedHashMap<>(0);
         this.pKeyValue = pKeyValue;
         this.bLoaded = LoadFromDB();
@@ -67,7 +79,8 @@ public abstract class Snapshot implements ObjectRelationalModel {
      * @param bAutoLoad Manual option to ignore the default load-from-database mechanism; if set to false, the data must be loaded intentionally after the Snapshot was created
      */
     public Snapshot(Object pKeyValue, boolean bAutoLoad) {
-        this.mSnapshot = new LinkedHashMap<>(GetTableColumnNames().length);
+        this.pMetadata = SnapshotMetadata.Get(this);
+        this.mSnapshot = new LinkedHashMap<>(pMetadata.aColumnNames.length);
         this.mCachedUpdate = new LinkedHashMap<>(0);
         this.pKeyValue = pKeyValue;
         this.bLoaded = bAutoLoad && LoadFromDB();
@@ -82,7 +95,8 @@ public abstract class Snapshot implements ObjectRelationalModel {
      *                   if set to false, you must call this object's Update()|Flush() methods independently to aggregate and flush changes to the DB
      */
     public Snapshot(Object pKeyValue, boolean bAutoLoad, boolean bAutoFlush) {
-        this.mSnapshot = new LinkedHashMap<>(GetTableColumnNames().length);
+        this.pMetadata = SnapshotMetadata.Get(this);
+        this.mSnapshot = new LinkedHashMap<>(pMetadata.aColumnNames.length);
         this.mCachedUpdate = new LinkedHashMap<>(0);
         this.pKeyValue = pKeyValue;
         if (bAutoLoad) {
@@ -104,37 +118,86 @@ public abstract class Snapshot implements ObjectRelationalModel {
      * will also perform creating the simplified SQL query as well as saving to DB automatically with no oversight necessary
      */
     public void Update() {
-        for (String sFieldName : GetTableColumnNames()) try {
-            Object pLastValue = mCachedUpdate.get(sFieldName);
-            if (pLastValue == null) {
-                pLastValue = mSnapshot.get(sFieldName);
-            }
-            Object pNewValue = getClass().getDeclaredField(sFieldName).get(this);
-            if (pNewValue == null) {
-                pNewValue = pLastValue;
+        pUpdateThenFlushLock.lock();
+        try {
+            Collect();
+            if (bSave || bAutoFlush) {
+                SaveToDB();
             }
-            if (!Objects.deepEquals(pLastValue, pNewValue)) {
-                mCachedUpdate.put(sFieldName, pNewValue);
-                if (!bSave) {
-                    bSave = true;
+        } finally {
+            pUpdateThenFlushLock.unlock();
+        }
+    }
+
+    /**
+     * Measures the changed field values into our cached updates map exactly as Update() does, but without flushing;
+     * used by a FlushPolicy so that the decision of when to hit the database is made from the aggregated dirty state
+     *
+     * @return The amount of columns currently waiting in the cached updates map to be flushed
+     */
+    public int Collect() {
+        pUpdateThenFlushLock.lock();
+        try {
+            for (int i = 0; i < pMetadata.aColumnNames.length; i++) try {
+                if (pMetadata.aFields[i] == null) {
+                    continue; // no field for this column, already reported when the metadata was built
+                }
+                String sFieldName = pMetadata.aColumnNames[i];
+                Object pLastValue = mCachedUpdate.get(sFieldName);
+                if (pLastValue == null) {
+                    pLastValue = mSnapshot.get(sFieldName);
+                }
+                Object pNewValue = pMetadata.aFields[i].get(this);
+                if (pNewValue == null) {
+                    pNewValue = pLastValue;
+                }
+                if (!Objects.deepEquals(pLastValue, pNewValue)) {
+                    UniqueKeyIndex pIndex = pMetadata.mUniqueKeyIndex.get(sFieldName);
+                    if (pIndex != null) {
+                        pIndex.Remove(mSnapshot.get(sFieldName), pKeyValue);
+                    }
+                    mCachedUpdate.put(sFieldName, pNewValue);
+                    if (!bSave) {
+                        bSave = true;
+                    }
                 }
+            } catch (IllegalAccessException e) {
+                e.printStackTrace();
             }
-        } catch (NoSuchFieldException | IllegalAccessException e) {
-            e.printStackTrace();
-        }
-        if (bSave || bAutoFlush) {
-            SaveToDB();
+            if (!mCachedUpdate.isEmpty() && nDirtySince == 0) {
+                nDirtySince = System.currentTimeMillis();
+            }
+            return mCachedUpdate.size();
+        } finally {
+            pUpdateThenFlushLock.unlock();
         }
     }
 
+    /**
+     * @return True, if this object's row was found and loaded from the database (or has been flushed to it since)
+     */
+    public boolean IsLoaded() {
+        return bLoaded;
+    }
+
+    /**
+     * @return The time in milliseconds of the oldest change that has not been flushed yet, or 0 if nothing is waiting
+     */
+    public long GetDirtySince() {
+        return nDirtySince;
+    }
+
     /**
      * Just a way to Update() then SaveToDB() all in one go, made a method for it only to add thread-safety in case this is poorly implemented; should be used if (bSave == FALSE)
+     *
+     * @return True, if a statement was executed against the database and succeeded;
+     *         False, if there was nothing to save or the statement failed
      */
-    public void FlushToDB() {
+    public boolean FlushToDB() {
         pUpdateThenFlushLock.lock();
         try {
-            Update();
-            SaveToDB();
+            Collect();
+            return SaveToDB();
         } finally {
             pUpdateThenFlushLock.unlock();
         }
@@ -145,34 +208,61 @@ public abstract class Snapshot implements ObjectRelationalModel {
      * and posts the flush statement to the database. Afterwards, resets the objects update cache to default and awaits
      * further changes to become available for posting
      *
+     * Holds pUpdateThenFlushLock for the whole flush, so a concurrent Collect() can never add a column between the
+     * statement executing and the cache being marked as saved
+     *
      * @return True, if anything was available in the cached field, saves the data, resets the cache;
      *         False, if there was nothing that needed to be saved (no changed saveable properties since the last flush)
      */
     protected boolean SaveToDB() {
-        if (!mCachedUpdate.isEmpty()) {
-            try (Connection con = Database.GetConnection()) { // will have to fill this method yourself
-                if (con != null) {
-                    try (PreparedStatement ps = con.prepareStatement(GetUpdateStatement(), Statement.RETURN_GENERATED_KEYS)) {
-                        int i = 1;
-                        for (Map.Entry<String, Object> o : mCachedUpdate.entrySet()) {
-                            ps.setObject(i++, o.getValue());
-                        }
+        pUpdateThenFlushLock.lock();
+        try {
+            if (!mCachedUpdate.isEmpty()) {
+                try (Connection con = Database.GetConnection()) { // will have to fill this method yourself
+                    if (con != null) {
+                        String sQuery = GetUpdateStatement();
+                        int nParameters = Database.CountParameters(sQuery);
+                        try (PreparedStatement ps = con.prepareStatement(sQuery, Statement.RETURN_GENERATED_KEYS)) {
+                            int i = 1;
+                            if (bLoaded) {
+                                // UPDATE - the changed columns, followed by the key in the WHERE
+                                for (Map.Entry<String, Object> o : mCachedUpdate.entrySet()) {
+                                    ps.setObject(i++, o.getValue());
+                                }
+                                if (i <= nParameters) {
+                                    ps.setObject(i, pKeyValue);
+                                }
+                            } else {
+                                // INSERT - every column, taking the changed value where there is one
+                                for (String sColumn : pMetadata.aColumnNames) {
+                                    if (i > nParameters) {
+                                        break;
+                                    }
+                                    ps.setObject(i++, mCachedUpdate.containsKey(sColumn) ? mCachedUpdate.get(sColumn) : mSnapshot.get(sColumn));
+                                }
+                            }
 
-                        Database.Execute(con, ps, mCachedUpdate.values()); // will have to fill this method yourself
-                        mSnapshot.putAll(mCachedUpdate);
+                            Database.Execute(con, ps, mCachedUpdate.values()); // will have to fill this method yourself
+                            mSnapshot.putAll(mCachedUpdate);
+                            pMetadata.Track(this, mCachedUpdate);
 
-                        mCachedUpdate.clear();
-                        if (!bLoaded) {
-                            bLoaded = true;
+                            mCachedUpdate.clear();
+                            bSave = false;
+                            nDirtySince = 0;
+                            if (!bLoaded) {
+                                bLoaded = true;
+                            }
+                            return true;
                         }
-                        return true;
                     }
+                } catch (SQLException e) {
+                    e.printStackTrace();
                 }
-            } catch (SQLException e) {
-                e.printStackTrace();
             }
+            return false;
+        } finally {
+            pUpdateThenFlushLock.unlock();
         }
-        return false;
     }
 
     /**
@@ -183,11 +273,14 @@ public abstract class Snapshot implements ObjectRelationalModel {
     protected void LoadFromSelf() {
         mSnapshot.clear();
         mCachedUpdate.clear();
-        for (int i = 0; i < GetTableColumnNames().length; i++) {
+        for (int i = 0; i < pMetadata.aColumnNames.length; i++) {
+            if (pMetadata.aFields[i] == null) {
+                continue;
+            }
             try {
-                Object pValue = getClass().getDeclaredField(GetTableColumnNames()[i]).get(this);
-                mSnapshot.put(GetTableColumnNames()[i], pValue);
-            } catch (NoSuchFieldException | IllegalArgumentException | IllegalAccessException e) {
+                Object pValue = pMetadata.aFields[i].get(this);
+                mSnapshot.put(pMetadata.aColumnNames[i], pValue);
+            } catch (IllegalArgumentException | IllegalAccessException e) {
                 e.printStackTrace();
             }
         }
@@ -195,32 +288,58 @@ public abstract class Snapshot implements ObjectRelationalModel {
 
     /**
      * Default method for loading all of an objects declared saveable fields from the corresponding SQL table;
-     * method is only ever invoked at the time of the object's creation
+     * method is only ever invoked at the time of the object's creation; the statement comes from GetSelectStatement(),
+     * whose key is bound as a parameter (an override that writes the key into the SQL itself binds nothing)
      *
      * @return True, if the SELECT query generated was validated and no errors were thrown when retrieving the data;
      *         False, if no data could be found or stored due to an invalid query or incorrect statement values used
      */
     protected boolean LoadFromDB() {
+        return LoadFromDB(GetSelectStatement(), pKeyValue);
+    }
+
+    /**
+     * Loads this object by one of the columns declared in GetUniqueKeys() instead of the increment key; afterwards
+     * the object's key value is taken from the loaded row, so updates are still located by the increment key
+     *
+     * @param sUniqueKey The unique column to select the row by (ex: "sUsername")
+     * @param pUniqueValue The value of the unique column for the desired row
+     * @return True, if the row was found and loaded; False otherwise, or if the column isn't declared as a unique key
+     */
+    protected boolean LoadFromDBByUniqueKey(String sUniqueKey, Object pUniqueValue) {
+        String sSelectQuery = pMetadata.mSelectByUniqueKey.get(sUniqueKey);
+        if (sSelectQuery == null) {
+            return false;
+        }
+        return LoadFromDB(sSelectQuery + GetAdditionalArguments(), pUniqueValue);
+    }
+
+    private boolean LoadFromDB(String sSelectQuery, Object pValue) {
         if (!bLoaded) {
-            String[] aColumnNames = GetTableColumnNames();
-            Class<?>[] aColumnTypes = GetTableColumnTypes();
-            String sSelectQuery = GetSelectStatement();
-            if (!sSelectQuery.contains(" = ") && !sSelectQuery.contains("like")) {
+            String[] aColumnNames = pMetadata.aColumnNames;
+            Class<?>[] aColumnTypes = pMetadata.aColumnTypes;
+            if (pValue == null) {
                 return false;
             }
             try (Connection con = Database.GetConnection()) { // will have to fill this method yourself
                 if (con != null) {
-                    try (PreparedStatement ps = con.prepareStatement(sSelectQuery, Statement.RETURN_GENERATED_KEYS)) {
+                    try (PreparedStatement ps = con.prepareStatement(sSelectQuery)) {
+                        if (Database.CountParameters(sSelectQuery) > 0) {
+                            ps.setObject(1, pValue);
+                        }
                         try (ResultSet rs = ps.executeQuery()) {
                             while (rs.next()) {
                                 for (int i = 0; i < aColumnNames.length; i++) {
-                                    Object pValue = rs.getObject((i + 1), aColumnTypes[i]);
+                                    if (pMetadata.aFields[i] == null) {
+                                        continue;
+                                    }
+                                    Object pColumnValue = rs.getObject((i + 1), aColumnTypes[i]);
                                     try {
-                                        getClass().getDeclaredField(aColumnNames[i]).set(this, pValue);
-                                    } catch (NoSuchFieldException | IllegalArgumentException | IllegalAccessException e) {
+                                        pMetadata.aFields[i].set(this, pColumnValue);
+                                    } catch (IllegalArgumentException | IllegalAccessException e) {
                                         e.printStackTrace();
                                     }
-                                    mSnapshot.put(aColumnNames[i], pValue);
+                                    mSnapshot.put(aColumnNames[i], pColumnValue);
                                 }
                             }
                         }
@@ -229,44 +348,83 @@ public abstract class Snapshot implements ObjectRelationalModel {
             } catch (SQLException e) {
                 e.printStackTrace();
             }
+            if (!mSnapshot.isEmpty() && mSnapshot.containsKey(pMetadata.sIncrementKey)) {
+                pKeyValue = mSnapshot.get(pMetadata.sIncrementKey);
+            }
         }
         return !mSnapshot.isEmpty();
     }
 
     /**
-     * An override function for adding additional SELECT query arguments if loading cannot be done with a single key
-     * or if you need to use a value that you don't have loaded yet (because its on another object typically not yet loaded)
+     * Resolves an already loaded object by its increment key using only the in-memory identity map
      *
-     * @return Any additional string arguments to be used with the auto-increment-key argument to retrieve the DB row
+     * @return The live object for the key, or null if it must be loaded from the database
      */
-    public String GetAdditionalArguments() { //override for adding multiple location arguments in the select query
-        return "";
+    public static <T extends Snapshot> T GetLoaded(Class<T> pClass, Object pKeyValue) {
+        SnapshotMetadata pMetadata = SnapshotMetadata.Get(pClass);
+        if (pMetadata == null) {
+            return null;
+        }
+        return pClass.cast(pMetadata.GetLoaded(pKeyValue));
     }
 
     /**
-     * Utility function for combining column names into a readable string for the SQL statement
+     * Must be applied to every object freshly created by a lookup, once its constructor has fully finished; this is
+     * where the object is published to the identity map and its unique keys are indexed (never from inside the
+     * constructor, where subclass field initializers have not run yet). If another object for the same row was
+     * already live (ex: the unique key was evicted from the index, or looked up with different casing) that object
+     * is returned instead, and the freshly created one should be discarded without ever being flushed
      *
-     * @return A usable string-reference for the SQL row or column names on this Snapshot
+     * @return The one live object for this object's row
      */
-    private String GetColumnNames() {
-        return String.join(", ", GetTableColumnNames());
+    @SuppressWarnings("unchecked")
+    public static <T extends Snapshot> T Resolve(T pSnapshot) {
+        if (pSnapshot.pKeyValue == null) {
+            return pSnapshot;
+        }
+        pSnapshot.pMetadata.Track(pSnapshot, pSnapshot.mSnapshot);
+        Snapshot pLoaded = pSnapshot.pMetadata.GetLoaded(pSnapshot.pKeyValue);
+        return pLoaded != null ? (T) pLoaded : pSnapshot;
     }
 
     /**
-     * Utility function for combining the column values into a readable string for the SQL statement
+     * Resolves an already loaded object by one of its class's unique keys using only the in-memory index
      *
-     * @return A usable string-reference for the SQL field values on this Snapshot
+     * @return The live object owning the unique value, or null if it must be loaded from the database
      */
-    private String GetValues() {
-        StringBuilder sValues = new StringBuilder();
-        for (int i = 0; i < mSnapshot.keySet().size(); i++) {
-            if (i != 0) {
-                sValues.append(", ?");
-            } else {
-                sValues.append("?");
-            }
+    public static <T extends Snapshot> T GetLoaded(Class<T> pClass, String sUniqueKey, Object pUniqueValue) {
+        SnapshotMetadata pMetadata = SnapshotMetadata.Get(pClass);
+        if (pMetadata == null) {
+            return null;
         }
-        return sValues.toString();
+        return pClass.cast(pMetadata.GetLoaded(sUniqueKey, pUniqueValue));
+    }
+
+    /**
+     * An override function for declaring secondary unique columns (ex: a username) that objects are looked up by;
+     * each gets a bounded in-memory index to the increment key, see UniqueKeyIndex
+     *
+     * @return The names of the unique columns, which must also be part of GetTableColumnNames()
+     */
+    public String[] GetUniqueKeys() {
+        return new String[0];
+    }
+
+    /**
+     * @return The maximum amount of values held by each of this class's unique key indexes before evicting
+     */
+    public int GetUniqueKeyCapacity() {
+        return 10000;
+    }
+
+    /**
+     * An override function for adding additional SELECT query arguments if loading cannot be done with a single key
+     * or if you need to use a value that you don't have loaded yet (because its on another object typically not yet loaded)
+     *
+     * @return Any additional string arguments to be used with the auto-increment-key argument to retrieve the DB row
+     */
+    public String GetAdditionalArguments() { //override for adding multiple location arguments in the select query
+        return "";
     }
 
     /**
@@ -282,54 +440,37 @@ public abstract class Snapshot implements ObjectRelationalModel {
     /**
      * Utility function for combining the table name with the full set of row names & values to be posted to the DB
      *
-     * @return A usable string-reference that's used when a new object should be saved that didn't exist originally
+     * @return A usable string-reference that's used when a new object should be saved that didn't exist originally;
+     *         precomputed once per class, with one parameter per column in GetTableColumnNames() order
      */
     @Override
     public String GetInsertStatement() {
-        return String.format("INSERT INTO `%s`.`%s` (%s) VALUES (%s)", GetSchemaName(), GetTableName(), GetColumnNames(), GetValues());
+        return pMetadata.sInsertStatement;
     }
 
     /**
      * Utility function for combining the table name with the updated row names & values to be posted to the DB
      *
-     * @return A usable string-reference that's used when an existing object should be flushed to the database for changes
+     * @return A usable string-reference that's used when an existing object should be flushed to the database for changes;
+     *         precomputed once per set of changed columns, with the key bound as the parameter after the changed values
      */
     @Override
     public String GetUpdateStatement() {
-        if (bLoaded) {
-            int i = 0;
-            StringBuilder sBuilder = new StringBuilder();
-            for (String sKey : mCachedUpdate.keySet()) {
-                if (i++ != 0) {
-                    sBuilder.append(", ");
-                }
-                sBuilder.append(String.format("`%s` = ?", sKey));
-            }
-            if (i > 0) {
-                return String.format("UPDATE `%s`.`%s` SET %s WHERE %s", GetSchemaName(), GetTableName(), sBuilder.toString(), GetLocationPart());
-            }
+        if (bLoaded && !mCachedUpdate.isEmpty()) {
+            return pMetadata.GetUpdateStatement(mCachedUpdate.keySet()) + GetAdditionalArguments();
         }
         return GetInsertStatement();
     }
 
-    /**
-     * Compartmentalized function to designate the location in the DB to be stored
-     *
-     * @return A usable string-reference that contains the location value needed to retrieve our row at the given (auto-inc-key) index
-     */
-    private String GetLocationPart() {
-        String sKeyValue = pKeyValue instanceof String ? String.format("\"%s\"", (""+pKeyValue)) : (""+pKeyValue);
-        return String.format("`%s` = %s%s", GetIncrementKey(), sKeyValue, GetAdditionalArguments()).trim();
-    }
-
     /**
      * Utility function for selecting the desired row for our object from the DB
      *
-     * @return A usable string-reference that's used when an existing object is created and needs to be loaded
+     * @return A usable string-reference that's used when an existing object is created and needs to be loaded;
+     *         the key is bound as the first parameter
      */
     @Override
     public String GetSelectStatement() {
-        return String.format("SELECT %s FROM `%s`.`%s` WHERE %s", GetColumnNames(), GetSchemaName(), GetTableName(), GetLocationPart()).trim();
+        return pMetadata.sSelectStatement + GetAdditionalArguments();
     }
 
     /**
@@ -342,10 +483,9 @@ public abstract class Snapshot implements ObjectRelationalModel {
     public Class<?>[] GetTableColumnTypes() {
         String[] aColumnNames = GetTableColumnNames();
         Class<?>[] aTypes = new Class<?>[aColumnNames.length];
-        int i = 0;
-        for (String sColumn : aColumnNames) try {
+        for (int i = 0; i < aColumnNames.length; i++) try {
             Class<?> pColumnType;
-            Class<?> pType = getClass().getDeclaredField(sColumn).getType();
+            Class<?> pType = getClass().getDeclaredField(aColumnNames[i]).getType();
             if (pType.isPrimitive()) {
                 pColumnType = switch (pType.getSimpleName().toLowerCase()) {
                     case "int" -> Integer.class;
@@ -365,7 +505,7 @@ public abstract class Snapshot implements ObjectRelationalModel {
                     pColumnType = pType;
                 }
             }
-            aTypes[i++] = pColumnType;
+            aTypes[i] = pColumnType;
         } catch (NoSuchFieldException e) {
             e.printStackTrace();
         }
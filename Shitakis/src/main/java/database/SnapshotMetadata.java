@@ -0,0 +1,221 @@
+package database;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Everything about a Snapshot class that never changes between instances - the reflected fields, column types and
+ * the SQL strings built from them. Built once per class (either by the first instance or by Database.Warmup) so that
+ * loading and measuring objects no longer pays for getDeclaredField / String.format on every call.
+ *
+ * Also holds the per-class lookup state - a weak identity map of the loaded objects by primary key (purged as their
+ * objects are collected), and one UniqueKeyIndex per column declared in Snapshot::GetUniqueKeys().
+ */
+public class SnapshotMetadata {
+
+    private static final Map<Class<?>, SnapshotMetadata> mMetadata = new ConcurrentHashMap<>();
+    private static final int MAX_UPDATE_STATEMENTS = 1024;
+
+    public final Class<? extends Snapshot> pClass;
+    public final String sSchemaName, sTableName, sIncrementKey;
+    public final String[] aColumnNames;
+    public final Class<?>[] aColumnTypes;
+    public final Field[] aFields; // null where a column has no matching field; skipped (and reported once) like before
+    public final String sColumnNames, sInsertStatement, sSelectStatement;
+    public final Map<String, String> mSelectByUniqueKey;
+    public final Map<String, UniqueKeyIndex> mUniqueKeyIndex;
+    private final Map<String, String> mUpdateStatements;
+    private final Map<Object, IdentityReference> mIdentity;
+    private final ReferenceQueue<Snapshot> pCollected;
+
+    private SnapshotMetadata(Snapshot pSnapshot) {
+        this.pClass = pSnapshot.getClass();
+        this.sSchemaName = pSnapshot.GetSchemaName();
+        this.sTableName = pSnapshot.GetTableName();
+        this.sIncrementKey = pSnapshot.GetIncrementKey();
+        this.aColumnNames = pSnapshot.GetTableColumnNames();
+        this.aColumnTypes = pSnapshot.GetTableColumnTypes();
+        this.aFields = new Field[aColumnNames.length];
+        for (int i = 0; i < aColumnNames.length; i++) {
+            try {
+                aFields[i] = pClass.getDeclaredField(aColumnNames[i]);
+                aFields[i].setAccessible(true);
+            } catch (NoSuchFieldException e) {
+                e.printStackTrace();
+            }
+        }
+        this.sColumnNames = String.join(", ", aColumnNames);
+        this.sInsertStatement = String.format("INSERT INTO `%s`.`%s` (%s) VALUES (%s)", sSchemaName, sTableName, sColumnNames, "?, ".repeat(aColumnNames.length).replaceAll(", $", ""));
+        this.sSelectStatement = String.format("SELECT %s FROM `%s`.`%s` WHERE `%s` = ?", sColumnNames, sSchemaName, sTableName, sIncrementKey);
+        this.mSelectByUniqueKey = new LinkedHashMap<>();
+        this.mUniqueKeyIndex = new LinkedHashMap<>();
+        for (String sUniqueKey : pSnapshot.GetUniqueKeys()) {
+            mSelectByUniqueKey.put(sUniqueKey, String.format("SELECT %s FROM `%s`.`%s` WHERE `%s` = ?", sColumnNames, sSchemaName, sTableName, sUniqueKey));
+            mUniqueKeyIndex.put(sUniqueKey, new UniqueKeyIndex(sUniqueKey, pSnapshot.GetUniqueKeyCapacity()));
+        }
+        this.mIdentity = new ConcurrentHashMap<>();
+        this.pCollected = new ReferenceQueue<>();
+        // Seed the UPDATE for every single column and for all columns, the sets almost every flush hits
+        this.mUpdateStatements = new ConcurrentHashMap<>();
+        for (String sColumn : aColumnNames) {
+            GetUpdateStatement(List.of(sColumn));
+        }
+        GetUpdateStatement(List.of(aColumnNames));
+    }
+
+    /**
+     * @return The UPDATE statement for exactly this set of changed columns; built once per distinct set and cached
+     *         (up to MAX_UPDATE_STATEMENTS sets), with the increment key bound as the last parameter
+     */
+    public String GetUpdateStatement(Collection<String> aColumns) {
+        String sColumns = String.join(",", aColumns);
+        String sUpdateStatement = mUpdateStatements.get(sColumns);
+        if (sUpdateStatement == null) {
+            StringBuilder sBuilder = new StringBuilder();
+            for (String sColumn : aColumns) {
+                if (sBuilder.length() != 0) {
+                    sBuilder.append(", ");
+                }
+                sBuilder.append('`').append(sColumn).append("` = ?");
+            }
+            sUpdateStatement = String.format("UPDATE `%s`.`%s` SET %s WHERE `%s` = ?", sSchemaName, sTableName, sBuilder, sIncrementKey);
+            if (mUpdateStatements.size() < MAX_UPDATE_STATEMENTS) {
+                mUpdateStatements.putIfAbsent(sColumns, sUpdateStatement);
+            }
+        }
+        return sUpdateStatement;
+    }
+
+    /**
+     * Records a loaded object as the live instance for its primary key and indexes its unique column values; if another
+     * object is already live for the key it stays the live instance, so two objects never own the same row
+     */
+    public void Track(Snapshot pSnapshot, Map<String, Object> mValues) {
+        if (pSnapshot.pKeyValue == null) {
+            return;
+        }
+        Purge();
+        mIdentity.compute(pSnapshot.pKeyValue, (pKey, pReference) -> {
+            if (pReference != null && pReference.get() != null) {
+                return pReference;
+            }
+            return new IdentityReference(pKey, pSnapshot, pCollected);
+        });
+        for (UniqueKeyIndex pIndex : mUniqueKeyIndex.values()) {
+            if (mValues.containsKey(pIndex.GetColumnName())) {
+                pIndex.Put(mValues.get(pIndex.GetColumnName()), pSnapshot.pKeyValue);
+            }
+        }
+    }
+
+    /**
+     * @return The live object loaded for this primary key, or null if there is none (or it has been collected)
+     */
+    public Snapshot GetLoaded(Object pKeyValue) {
+        if (pKeyValue == null) {
+            return null;
+        }
+        Purge();
+        IdentityReference pReference = mIdentity.get(pKeyValue);
+        return pReference == null ? null : pReference.get();
+    }
+
+    /**
+     * Removes the identity entries of every object the garbage collector has cleared since the last call, so the map
+     * only ever holds as many entries as there are live objects (plus those collected since the last Track/GetLoaded)
+     */
+    private void Purge() {
+        Reference<? extends Snapshot> pReference;
+        while ((pReference = pCollected.poll()) != null) {
+            mIdentity.remove(((IdentityReference) pReference).pKeyValue, pReference);
+        }
+    }
+
+    /**
+     * @return The amount of live objects in the identity map
+     */
+    int GetLoadedCount() {
+        Purge();
+        return mIdentity.size();
+    }
+
+    /**
+     * Resolves a unique column value to the live object owning it, without touching the database
+     *
+     * @return The loaded object, or null if the value isn't indexed or its object is no longer alive
+     */
+    public Snapshot GetLoaded(String sUniqueKey, Object pUniqueValue) {
+        UniqueKeyIndex pIndex = mUniqueKeyIndex.get(sUniqueKey);
+        if (pIndex == null) {
+            return null;
+        }
+        Snapshot pSnapshot = GetLoaded(pIndex.Get(pUniqueValue));
+        if (pSnapshot == null) {
+            return null;
+        }
+        // The owner may have changed the value since it was indexed, before Collect() got to invalidate it
+        for (int i = 0; i < aColumnNames.length; i++) {
+            if (aColumnNames[i].equals(sUniqueKey) && aFields[i] != null) {
+                try {
+                    return pUniqueValue.equals(aFields[i].get(pSnapshot)) ? pSnapshot : null;
+                } catch (IllegalAccessException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return The cached metadata for this object's class, building it from the object on first use
+     */
+    public static SnapshotMetadata Get(Snapshot pSnapshot) {
+        SnapshotMetadata pMetadata = mMetadata.get(pSnapshot.getClass());
+        if (pMetadata == null) {
+            pMetadata = new SnapshotMetadata(pSnapshot);
+            SnapshotMetadata pExisting = mMetadata.putIfAbsent(pSnapshot.getClass(), pMetadata);
+            if (pExisting != null) {
+                pMetadata = pExisting;
+            }
+        }
+        return pMetadata;
+    }
+
+    /**
+     * Builds the metadata for a class before any instance exists, using the class's no-argument constructor; that
+     * constructor must not load anything, ex: {@code private Account() { super(null, false, false); }}
+     *
+     * @return The cached metadata for the class, or null if the class has no usable no-argument constructor
+     */
+    public static SnapshotMetadata Get(Class<? extends Snapshot> pClass) {
+        SnapshotMetadata pMetadata = mMetadata.get(pClass);
+        if (pMetadata != null) {
+            return pMetadata;
+        }
+        try {
+            Constructor<? extends Snapshot> pConstructor = pClass.getDeclaredConstructor();
+            pConstructor.setAccessible(true);
+            return Get(pConstructor.newInstance());
+        } catch (ReflectiveOperationException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private static class IdentityReference extends WeakReference<Snapshot> {
+        private final Object pKeyValue;
+
+        private IdentityReference(Object pKeyValue, Snapshot pSnapshot, ReferenceQueue<Snapshot> pQueue) {
+            super(pSnapshot, pQueue);
+            this.pKeyValue = pKeyValue;
+        }
+    }
+}
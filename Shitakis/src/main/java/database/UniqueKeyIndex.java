@@ -0,0 +1,61 @@
+package database;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded in-memory index from one secondary unique column value (ex: sUsername) to the row's primary key value,
+ * so a lookup by the secondary column can resolve to an already loaded object without asking the database first.
+ *
+ * Filled whenever a row is loaded or its unique column is flushed, and invalidated as soon as Snapshot::Collect()
+ * measures a change on the column. Least-recently-used entries are evicted once the capacity is reached.
+ *
+ * NOTE - only changes made through this process are seen; if other applications rename rows in the same table,
+ *        a stale entry still only points at a primary key, which is then loaded/compared as normal
+ */
+public class UniqueKeyIndex {
+
+    private final String sColumnName;
+    private final Map<Object, Object> mPrimaryKeys;
+
+    public UniqueKeyIndex(String sColumnName, int nCapacity) {
+        this.sColumnName = sColumnName;
+        this.mPrimaryKeys = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Object> pEldest) {
+                return size() > nCapacity;
+            }
+        };
+    }
+
+    public String GetColumnName() {
+        return sColumnName;
+    }
+
+    /**
+     * @return The primary key value last seen for this unique value, or null if it isn't indexed
+     */
+    public synchronized Object Get(Object pUniqueValue) {
+        return pUniqueValue == null ? null : mPrimaryKeys.get(pUniqueValue);
+    }
+
+    public synchronized void Put(Object pUniqueValue, Object pKeyValue) {
+        if (pUniqueValue != null && pKeyValue != null) {
+            mPrimaryKeys.put(pUniqueValue, pKeyValue);
+        }
+    }
+
+    /**
+     * Removes the unique value only if it still points at the given primary key, so an invalidation from an old
+     * object can never remove the mapping that a newer owner of the value has already put
+     */
+    public synchronized void Remove(Object pUniqueValue, Object pKeyValue) {
+        if (pUniqueValue != null) {
+            mPrimaryKeys.remove(pUniqueValue, pKeyValue);
+        }
+    }
+
+    synchronized int Size() {
+        return mPrimaryKeys.size();
+    }
+}
@@ -6,19 +6,58 @@ import database.Snapshot;
 public class Account extends Snapshot {
 
     public int dwAccountID, nNexonCash;
-    public String sUsername = "";
+    public String sUsername;
+
+    /**
+     * Used by Database.Warmup to read the table definition before any account is loaded; loads nothing
+     */
+    private Account() {
+        super(null, false, false);
+    }
 
     public Account(String sNexonClubID) {
-        super(sNexonClubID, true, false);
+        super(null, false, false);
+        this.bLoaded = LoadFromDBByUniqueKey("sUsername", sNexonClubID);
     }
 
     public Account(int dwAccountID) {
-        super(dwAccountID, true, false);
+        super(dwAccountID, false, false);
+        this.dwAccountID = dwAccountID; // so a row that doesn't exist yet is inserted under this ID
         if (dwAccountID > 0) {
             this.bLoaded = LoadFromDB();
         }
     }
 
+    /**
+     * Login-by-name; returns the account already in memory when the username is indexed, otherwise loads it
+     * (and still returns the live account if the row turns out to be loaded already)
+     *
+     * @return The account, or null if no account exists with this username
+     */
+    public static Account GetByUsername(String sNexonClubID) {
+        Account pAccount = GetLoaded(Account.class, "sUsername", sNexonClubID);
+        if (pAccount == null) {
+            pAccount = new Account(sNexonClubID);
+            if (!pAccount.IsLoaded()) {
+                return null;
+            }
+            pAccount = Resolve(pAccount);
+        }
+        return pAccount;
+    }
+
+    /**
+     * Returns the account already in memory for this ID, otherwise loads it; if no row exists yet the account is
+     * returned unloaded (check IsLoaded()) and is inserted with this ID on its first flush
+     */
+    public static Account GetByAccountID(int dwAccountID) {
+        Account pAccount = GetLoaded(Account.class, dwAccountID);
+        if (pAccount == null) {
+            pAccount = Resolve(new Account(dwAccountID));
+        }
+        return pAccount;
+    }
+
     @Override
     public String GetIncrementKey() {
         return "dwAccountID";
@@ -29,6 +68,13 @@ public class Account extends Snapshot {
         return Database.LOGIN_SCHEMA; // will have to fill this constant yourself
     }
 
+    @Override
+    public String[] GetUniqueKeys() {
+        return new String[] {
+                "sUsername"
+        };
+    }
+
     @Override
     public String[] GetTableColumnNames() {
         return new String[] {
@@ -0,0 +1,201 @@
+package database;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Exercises FlushPolicy::Tick() selection without a database; Snapshot(key, false, false) performs no I/O and the
+ * objects below record their flush instead of hitting Database.
+ */
+public class FlushPolicyTest {
+
+    private static final long TICK = 10000L, MIN_STALENESS = 1000L, MAX_STALENESS = 5000L, SLOW_LATENCY = 250L;
+
+    @Test
+    public void FlushesOverdueFirstThenByPriorityThenAge() {
+        List<Object> aFlushed = new ArrayList<>();
+        FlushPolicy pPolicy = new FlushPolicy(TICK, MIN_STALENESS, MAX_STALENESS, 1000, SLOW_LATENCY);
+        pPolicy.Register(Dirty("overdue-low", aFlushed, 1, 6000L), FlushPolicy.PRIORITY_LOW);
+        pPolicy.Register(Dirty("high", aFlushed, 1, 2000L), FlushPolicy.PRIORITY_HIGH);
+        pPolicy.Register(Dirty("normal-older", aFlushed, 1, 3000L), FlushPolicy.PRIORITY_NORMAL);
+        pPolicy.Register(Dirty("normal-newer", aFlushed, 1, 2500L), FlushPolicy.PRIORITY_NORMAL);
+        pPolicy.Register(Dirty("high-too-new", aFlushed, 1, 500L), FlushPolicy.PRIORITY_HIGH);
+
+        pPolicy.Tick();
+
+        assertEquals(List.of("overdue-low", "high", "normal-older", "normal-newer"), aFlushed);
+    }
+
+    @Test
+    public void PullsDirtiestHeldObjectsInOverTheDirtyBudget() {
+        List<Object> aFlushed = new ArrayList<>();
+        FlushPolicy pPolicy = new FlushPolicy(TICK, MIN_STALENESS, MAX_STALENESS, 3, SLOW_LATENCY);
+        pPolicy.Register(Dirty("one", aFlushed, 1, 0L), FlushPolicy.PRIORITY_HIGH);
+        pPolicy.Register(Dirty("three", aFlushed, 3, 0L), FlushPolicy.PRIORITY_LOW);
+        pPolicy.Register(Dirty("two", aFlushed, 2, 0L), FlushPolicy.PRIORITY_NORMAL);
+
+        pPolicy.Tick();
+
+        // 6 dirty columns against a budget of 3 - flushing the 3-column object alone brings it back underneath
+        assertEquals(List.of("three"), aFlushed);
+    }
+
+    @Test
+    public void HoldsCleanAndFreshObjects() {
+        List<Object> aFlushed = new ArrayList<>();
+        FlushPolicy pPolicy = new FlushPolicy(TICK, MIN_STALENESS, MAX_STALENESS, 1000, SLOW_LATENCY);
+        pPolicy.Register(Dirty("clean", aFlushed, 0, 0L), FlushPolicy.PRIORITY_HIGH);
+        pPolicy.Register(Dirty("fresh", aFlushed, 2, 0L), FlushPolicy.PRIORITY_HIGH);
+
+        pPolicy.Tick();
+
+        assertEquals(List.of(), aFlushed);
+    }
+
+    @Test
+    public void OneFailingObjectDoesNotStopTheOthers() {
+        List<Object> aFlushed = new ArrayList<>();
+        FlushPolicy pPolicy = new FlushPolicy(TICK, MIN_STALENESS, MAX_STALENESS, 1000, SLOW_LATENCY);
+        TestSnapshot pBrokenFlush = Dirty("broken-flush", aFlushed, 1, 9000L);
+        pBrokenFlush.bThrowOnFlush = true;
+        TestSnapshot pBrokenCollect = Dirty("broken-collect", aFlushed, 1, 9000L);
+        pBrokenCollect.bThrowOnCollect = true;
+        pPolicy.Register(pBrokenFlush, FlushPolicy.PRIORITY_HIGH);
+        pPolicy.Register(pBrokenCollect, FlushPolicy.PRIORITY_HIGH);
+        pPolicy.Register(Dirty("healthy", aFlushed, 1, 6000L), FlushPolicy.PRIORITY_LOW);
+
+        pPolicy.Tick();
+
+        assertEquals(List.of("healthy"), aFlushed);
+    }
+
+    @Test
+    public void UnregisterPerformsTheFinalFlush() {
+        List<Object> aFlushed = new ArrayList<>();
+        FlushPolicy pPolicy = new FlushPolicy(TICK, MIN_STALENESS, MAX_STALENESS, 1000, SLOW_LATENCY);
+        TestSnapshot pSnapshot = Dirty("leaving", aFlushed, 1, 0L);
+        pPolicy.Register(pSnapshot, FlushPolicy.PRIORITY_NORMAL);
+
+        pPolicy.Unregister(pSnapshot);
+        pPolicy.Tick();
+
+        assertEquals(List.of("leaving"), aFlushed);
+    }
+
+    @Test
+    public void ShedsNonOverdueObjectsOnceFlushesAreSlow() {
+        List<Object> aFlushed = new ArrayList<>();
+        FlushPolicy pPolicy = new FlushPolicy(TICK, MIN_STALENESS, MAX_STALENESS, 3, SLOW_LATENCY);
+        TestSnapshot pSlow = Dirty("slow", aFlushed, 1, 0L);
+        pSlow.nFlushMillis = SLOW_LATENCY + 50L;
+        pPolicy.Register(pSlow, FlushPolicy.PRIORITY_NORMAL);
+        pPolicy.Unregister(pSlow); // one flush slower than SLOW_LATENCY saturates the smoothed latency
+        assertTrue(pPolicy.GetFlushLatency() >= SLOW_LATENCY);
+        assertEquals(1.0, pPolicy.GetPressure());
+        aFlushed.clear();
+
+        pPolicy.Register(Dirty("overdue", aFlushed, 1, 6000L), FlushPolicy.PRIORITY_LOW);
+        pPolicy.Register(Dirty("due-when-idle", aFlushed, 1, 2000L), FlushPolicy.PRIORITY_HIGH);
+        pPolicy.Register(Dirty("over-budget", aFlushed, 3, 0L), FlushPolicy.PRIORITY_LOW);
+
+        pPolicy.Tick();
+
+        // due-when-idle would flush at pressure 0 (2000ms > MIN_STALENESS) but is held while shedding; the overdue
+        // object still flushes, and the dirty budget (5 columns against 3) still pulls the dirtiest held object in
+        assertEquals(List.of("overdue", "over-budget"), aFlushed);
+    }
+
+    @Test
+    public void CleanAndFailedFlushesDoNotLowerTheLatency() {
+        List<Object> aFlushed = new ArrayList<>();
+        FlushPolicy pPolicy = new FlushPolicy(TICK, MIN_STALENESS, MAX_STALENESS, 1000, SLOW_LATENCY);
+        TestSnapshot pSlow = Dirty("slow", aFlushed, 1, 0L);
+        pSlow.nFlushMillis = SLOW_LATENCY + 50L;
+        pPolicy.Register(pSlow, FlushPolicy.PRIORITY_NORMAL);
+        pPolicy.Unregister(pSlow);
+        double dLatency = pPolicy.GetFlushLatency();
+
+        TestSnapshot pFailed = Dirty("failed", aFlushed, 1, 0L);
+        pFailed.bFlushSucceeds = false;
+        pPolicy.Register(pFailed, FlushPolicy.PRIORITY_NORMAL);
+        pPolicy.Unregister(pFailed);
+
+        assertEquals(dLatency, pPolicy.GetFlushLatency());
+    }
+
+    /**
+     * Creates an object with nDirty changed columns whose oldest change is nAge milliseconds old
+     */
+    private static TestSnapshot Dirty(String sKey, List<Object> aFlushed, int nDirty, long nAge) {
+        TestSnapshot pSnapshot = new TestSnapshot(sKey, aFlushed);
+        pSnapshot.LoadFromSelf(); // the current field values become the "loaded" snapshot
+        if (nDirty > 0) pSnapshot.nFirst++;
+        if (nDirty > 1) pSnapshot.nSecond++;
+        if (nDirty > 2) pSnapshot.nThird++;
+        if (pSnapshot.Collect() > 0) {
+            pSnapshot.nDirtySince = System.currentTimeMillis() - nAge;
+        }
+        return pSnapshot;
+    }
+
+    static class TestSnapshot extends Snapshot {
+
+        int nFirst, nSecond, nThird;
+        boolean bThrowOnFlush, bThrowOnCollect, bFlushSucceeds = true;
+        long nFlushMillis;
+        private final List<Object> aFlushed;
+
+        TestSnapshot(String sKey, List<Object> aFlushed) {
+            super(sKey, false, false);
+            this.aFlushed = aFlushed;
+        }
+
+        @Override
+        public int Collect() {
+            if (bThrowOnCollect) {
+                throw new IllegalStateException("broken collect");
+            }
+            return super.Collect();
+        }
+
+        @Override
+        public boolean FlushToDB() {
+            if (bThrowOnFlush) {
+                throw new IllegalStateException("broken flush");
+            }
+            if (nFlushMillis > 0) {
+                try {
+                    Thread.sleep(nFlushMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            aFlushed.add(pKeyValue);
+            return bFlushSucceeds;
+        }
+
+        @Override
+        public String GetIncrementKey() {
+            return "sKey";
+        }
+
+        @Override
+        public String GetSchemaName() {
+            return "test";
+        }
+
+        @Override
+        public String[] GetTableColumnNames() {
+            return new String[] {
+                    "nFirst",
+                    "nSecond",
+                    "nThird"
+            };
+        }
+    }
+}
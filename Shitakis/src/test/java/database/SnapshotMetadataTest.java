@@ -0,0 +1,147 @@
+package database;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Exercises the identity map and unique key index without a database; each object below acts as if its row had just
+ * been loaded (LoadFromSelf) and is then published through Snapshot::Resolve like a real lookup would.
+ */
+public class SnapshotMetadataTest {
+
+    @Test
+    public void ResolvedObjectIsFoundByKeyAndByUniqueValue() {
+        TestUser pUser = Snapshot.Resolve(new TestUser(101, "ann"));
+
+        assertSame(pUser, Snapshot.GetLoaded(TestUser.class, 101));
+        assertSame(pUser, Snapshot.GetLoaded(TestUser.class, "sName", "ann"));
+    }
+
+    @Test
+    public void FirstLiveObjectWinsForTheSameRow() {
+        TestUser pFirst = Snapshot.Resolve(new TestUser(102, "bob"));
+        TestUser pSecond = new TestUser(102, "BOB"); // ex: same row looked up with different casing
+
+        assertSame(pFirst, Snapshot.Resolve(pSecond));
+        assertSame(pFirst, Snapshot.GetLoaded(TestUser.class, 102));
+        // the second spelling is indexed to the same row, but the live object's field is what gets compared
+        assertEquals(102, pFirst.pMetadata.mUniqueKeyIndex.get("sName").Get("BOB"));
+        assertNull(Snapshot.GetLoaded(TestUser.class, "sName", "BOB"));
+    }
+
+    @Test
+    public void ChangedFieldIsNotResolvedByItsOldValue() {
+        TestUser pUser = Snapshot.Resolve(new TestUser(103, "cat"));
+        pUser.sName = "kat"; // changed, but not measured by Collect() yet
+
+        assertNull(Snapshot.GetLoaded(TestUser.class, "sName", "cat"));
+    }
+
+    @Test
+    public void CollectInvalidatesTheOldUniqueValue() {
+        TestUser pUser = Snapshot.Resolve(new TestUser(104, "dan"));
+        UniqueKeyIndex pIndex = pUser.pMetadata.mUniqueKeyIndex.get("sName");
+        pUser.sName = "don";
+
+        pUser.Collect();
+
+        assertNull(pIndex.Get("dan"));
+        assertNull(Snapshot.GetLoaded(TestUser.class, "sName", "dan"));
+    }
+
+    @Test
+    public void CollectedObjectsArePurgedFromTheIdentityMap() throws InterruptedException {
+        SnapshotMetadata pMetadata = SnapshotMetadata.Get(GcUser.class);
+        ResolveAndDrop();
+        assertEquals(1, pMetadata.GetLoadedCount());
+
+        for (int i = 0; i < 50 && pMetadata.GetLoadedCount() != 0; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+
+        assertEquals(0, pMetadata.GetLoadedCount());
+        assertNull(Snapshot.GetLoaded(GcUser.class, 1));
+    }
+
+    private static void ResolveAndDrop() {
+        Snapshot.Resolve(new GcUser(1));
+    }
+
+    static class TestUser extends Snapshot {
+
+        int nID;
+        String sName;
+
+        private TestUser() {
+            super(null, false, false);
+        }
+
+        TestUser(int nID, String sName) {
+            super(nID, false, false);
+            this.nID = nID;
+            this.sName = sName;
+            LoadFromSelf(); // stands in for the row being loaded
+        }
+
+        @Override
+        public String GetIncrementKey() {
+            return "nID";
+        }
+
+        @Override
+        public String GetSchemaName() {
+            return "test";
+        }
+
+        @Override
+        public String[] GetUniqueKeys() {
+            return new String[] {
+                    "sName"
+            };
+        }
+
+        @Override
+        public String[] GetTableColumnNames() {
+            return new String[] {
+                    "nID",
+                    "sName"
+            };
+        }
+    }
+
+    static class GcUser extends Snapshot {
+
+        int nID;
+
+        private GcUser() {
+            super(null, false, false);
+        }
+
+        GcUser(int nID) {
+            super(nID, false, false);
+            this.nID = nID;
+            LoadFromSelf();
+        }
+
+        @Override
+        public String GetIncrementKey() {
+            return "nID";
+        }
+
+        @Override
+        public String GetSchemaName() {
+            return "test";
+        }
+
+        @Override
+        public String[] GetTableColumnNames() {
+            return new String[] {
+                    "nID"
+            };
+        }
+    }
+}
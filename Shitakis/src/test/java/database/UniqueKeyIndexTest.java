@@ -0,0 +1,45 @@
+package database;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class UniqueKeyIndexTest {
+
+    @Test
+    public void EvictsLeastRecentlyUsedOverCapacity() {
+        UniqueKeyIndex pIndex = new UniqueKeyIndex("sName", 2);
+        pIndex.Put("ann", 1);
+        pIndex.Put("bob", 2);
+        pIndex.Get("ann"); // ann is now the most recently used
+        pIndex.Put("cat", 3);
+
+        assertEquals(2, pIndex.Size());
+        assertEquals(1, pIndex.Get("ann"));
+        assertNull(pIndex.Get("bob"));
+        assertEquals(3, pIndex.Get("cat"));
+    }
+
+    @Test
+    public void RemoveOnlyDropsTheMappingOfItsOwner() {
+        UniqueKeyIndex pIndex = new UniqueKeyIndex("sName", 10);
+        pIndex.Put("ann", 1);
+
+        pIndex.Remove("ann", 2); // a previous owner invalidating its old name
+        assertEquals(1, pIndex.Get("ann"));
+
+        pIndex.Remove("ann", 1);
+        assertNull(pIndex.Get("ann"));
+    }
+
+    @Test
+    public void IgnoresNullValuesAndKeys() {
+        UniqueKeyIndex pIndex = new UniqueKeyIndex("sName", 10);
+        pIndex.Put(null, 1);
+        pIndex.Put("ann", null);
+
+        assertEquals(0, pIndex.Size());
+        assertNull(pIndex.Get(null));
+    }
+}